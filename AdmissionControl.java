@@ -0,0 +1,366 @@
+package backend;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Admission-control stage that sits in front of {@link TicketPool#removeTicket()}.
+ * Every purchase request is checked against per-customer and per-source limits before it is allowed to
+ * contend for the pool's lock, so abusive callers are rejected cheaply and cannot consume pool throughput.
+ * Checks performed, in order:
+ * - A token bucket per source and a sliding-window counter per source to limit the rate of all customers behind it.
+ * - A token bucket per customer to limit the request rate of a single customer.
+ * - A purchase limit per customer and per source to cap the total number of tickets bought.
+ * If any check rejects a request, the allowance already taken by the earlier checks is handed back.
+ * State is split across shards, each guarded by its own lock, so concurrent customers rarely contend with each other.
+ * Idle rate-limit entries are expired, and each shard tracks at most {@link #MAX_KEYS_PER_SHARD} keys per map,
+ * so callers that keep inventing new identifiers cannot grow the state without bound.
+ */
+public class AdmissionControl {
+    /**
+     * Default number of requests per second a single customer may make.
+     */
+    public static final double DEFAULT_REQUESTS_PER_SECOND = 2.0;
+
+    /**
+     * Default number of requests a single customer may make in a burst.
+     */
+    public static final int DEFAULT_BURST = 2;
+
+    /**
+     * Default number of requests a single customer may make per sliding window.
+     * A source's window limit is this multiplied by the number of customers behind it.
+     */
+    public static final int DEFAULT_REQUESTS_PER_WINDOW = 20;
+
+    /**
+     * Default length of the sliding window in milliseconds.
+     */
+    public static final long DEFAULT_WINDOW_MILLIS = 10000;
+
+    /**
+     * Maximum number of keys each shard tracks per map. New keys are rejected once a shard is full of active keys.
+     */
+    public static final int MAX_KEYS_PER_SHARD = 4096;
+
+    private static final int SHARD_COUNT = 16;
+
+    /**
+     * Minimum time between sweeps forced by a full shard. New keys arriving in between are rejected straight away,
+     * so a flood of invented identifiers cannot make every request scan the whole shard.
+     */
+    private static final long FULL_SWEEP_INTERVAL_NANOS = 100000000L;
+
+    /**
+     * Returned by {@code tryCount} when the request was not counted.
+     */
+    private static final long NOT_COUNTED = Long.MIN_VALUE;
+
+    /**
+     * Outcome of an admission check.
+     */
+    public enum Decision {
+        /** The request may proceed to the ticket pool. A purchase slot has been reserved. */
+        ADMITTED,
+        /** The caller is sending requests too quickly. It may try again later. */
+        RATE_LIMITED,
+        /** The caller has bought as many tickets as it is allowed to. */
+        LIMIT_REACHED
+    }
+
+    private final int maxTicketsPerCustomer;
+    private final int maxTicketsPerSource;
+    private final double customerRequestsPerSecond;
+    private final int customerBurst;
+    private final double sourceRequestsPerSecond;
+    private final int sourceBurst;
+    private final int sourceRequestsPerWindow;
+    private final long windowNanos;
+    private final Shard[] shards = new Shard[SHARD_COUNT];
+
+    /**
+     * Constructor for the AdmissionControl class using the default rate limits.
+     * The rate limits of each source are sized so that the given number of customers behind it,
+     * each staying within the default customer limits, are never rejected.
+     *
+     * @param maxTicketsPerCustomer The maximum number of tickets a single customer may buy.
+     * @param maxTicketsPerSource The maximum number of tickets all customers of a single source may buy.
+     * @param customersPerSource The number of customers expected behind a single source.
+     */
+    public AdmissionControl(int maxTicketsPerCustomer, int maxTicketsPerSource, int customersPerSource) {
+        this(maxTicketsPerCustomer, maxTicketsPerSource, DEFAULT_REQUESTS_PER_SECOND, DEFAULT_BURST,
+                DEFAULT_REQUESTS_PER_SECOND * customersPerSource, DEFAULT_BURST * customersPerSource,
+                DEFAULT_REQUESTS_PER_WINDOW * customersPerSource, DEFAULT_WINDOW_MILLIS);
+    }
+
+    /**
+     * Constructor for the AdmissionControl class with all limits passed in the parameters.
+     *
+     * @param maxTicketsPerCustomer The maximum number of tickets a single customer may buy.
+     * @param maxTicketsPerSource The maximum number of tickets all customers of a single source may buy.
+     * @param customerRequestsPerSecond The rate at which a customer's token bucket refills.
+     * @param customerBurst The capacity of each customer's token bucket.
+     * @param sourceRequestsPerSecond The rate at which a source's token bucket refills.
+     * @param sourceBurst The capacity of each source's token bucket.
+     * @param sourceRequestsPerWindow The maximum number of requests a source may make per sliding window.
+     * @param windowMillis The length of the sliding window in milliseconds.
+     */
+    public AdmissionControl(int maxTicketsPerCustomer, int maxTicketsPerSource, double customerRequestsPerSecond,
+                            int customerBurst, double sourceRequestsPerSecond, int sourceBurst,
+                            int sourceRequestsPerWindow, long windowMillis) {
+        if (maxTicketsPerCustomer <= 0 || maxTicketsPerSource <= 0 || customerRequestsPerSecond <= 0 || customerBurst <= 0
+                || sourceRequestsPerSecond <= 0 || sourceBurst <= 0 || sourceRequestsPerWindow <= 0 || windowMillis <= 0) {
+            throw new IllegalArgumentException("All admission limits must be positive.");
+        }
+        this.maxTicketsPerCustomer = maxTicketsPerCustomer;
+        this.maxTicketsPerSource = maxTicketsPerSource;
+        this.customerRequestsPerSecond = customerRequestsPerSecond;
+        this.customerBurst = customerBurst;
+        this.sourceRequestsPerSecond = sourceRequestsPerSecond;
+        this.sourceBurst = sourceBurst;
+        this.sourceRequestsPerWindow = sourceRequestsPerWindow;
+        this.windowNanos = windowMillis * 1000000L;
+        for (int i = 0; i < SHARD_COUNT; i++) {
+            shards[i] = new Shard();
+        }
+    }
+
+    /**
+     * Checks whether a customer may request a ticket from the pool.
+     * If the request is admitted, one ticket is reserved against the customer's and source's purchase limits.
+     * The reservation must be handed back with {@link #release(String, String)} if no ticket is obtained.
+     *
+     * @param customerId The identifier of the customer making the request.
+     * @param source The identifier of the source (e.g. client or address) the request came from.
+     * @return the admission decision for the request.
+     */
+    public Decision tryAdmit(String customerId, String source) {
+        long now = System.nanoTime();
+        String customerKey = "customer:" + customerId;
+        String sourceKey = "source:" + source;
+        Shard customerShard = shardFor(customerKey);
+        Shard sourceShard = shardFor(sourceKey);
+
+        // Rate checks first: they are the cheapest way to turn away a flood of requests.
+        // The source is checked before the customer, so new customer ids behind a throttled source create no state.
+        if (!sourceShard.tryTake(sourceKey, now, sourceRequestsPerSecond, sourceBurst)) {
+            return Decision.RATE_LIMITED;
+        }
+        long countedWindow = sourceShard.tryCount(sourceKey, now);
+        if (countedWindow == NOT_COUNTED) {
+            sourceShard.refund(sourceKey);
+            return Decision.RATE_LIMITED;
+        }
+        if (!customerShard.tryTake(customerKey, now, customerRequestsPerSecond, customerBurst)) {
+            sourceShard.uncount(sourceKey, countedWindow);
+            sourceShard.refund(sourceKey);
+            return Decision.RATE_LIMITED;
+        }
+
+        // Reserve a ticket against both purchase limits, rolling back everything taken so far if either fails
+        if (!customerShard.tryReserve(customerKey, maxTicketsPerCustomer)) {
+            customerShard.refund(customerKey);
+            sourceShard.uncount(sourceKey, countedWindow);
+            sourceShard.refund(sourceKey);
+            return Decision.LIMIT_REACHED;
+        }
+        if (!sourceShard.tryReserve(sourceKey, maxTicketsPerSource)) {
+            customerShard.release(customerKey);
+            customerShard.refund(customerKey);
+            sourceShard.uncount(sourceKey, countedWindow);
+            sourceShard.refund(sourceKey);
+            return Decision.LIMIT_REACHED;
+        }
+        return Decision.ADMITTED;
+    }
+
+    /**
+     * Hands back a purchase slot reserved by {@link #tryAdmit(String, String)} when no ticket was obtained.
+     *
+     * @param customerId The identifier of the customer that made the request.
+     * @param source The identifier of the source the request came from.
+     */
+    public void release(String customerId, String source) {
+        String customerKey = "customer:" + customerId;
+        String sourceKey = "source:" + source;
+        shardFor(customerKey).release(customerKey);
+        shardFor(sourceKey).release(sourceKey);
+    }
+
+    private Shard shardFor(String key) {
+        int hash = key.hashCode();
+        // Spread the high bits so that similar keys land on different shards
+        return shards[(hash ^ (hash >>> 16)) & (SHARD_COUNT - 1)];
+    }
+
+    /**
+     * A token bucket refilled continuously at {@code requestsPerSecond}, holding at most {@code burst} tokens.
+     */
+    private static class TokenBucket {
+        private double requestsPerSecond;
+        private int burst;
+        private double tokens;
+        private long lastRefillNanos;
+
+        void refill(long now) {
+            double refill = (now - lastRefillNanos) / 1e9 * requestsPerSecond;
+            tokens = Math.min(burst, tokens + refill);
+            lastRefillNanos = now;
+        }
+    }
+
+    /**
+     * A sliding-window counter that estimates the number of requests in the last window
+     * by weighting the previous fixed window's count by how much of it still overlaps.
+     */
+    private static class SlidingWindowCounter {
+        private long windowStartNanos;
+        private int previousCount;
+        private int currentCount;
+    }
+
+    /**
+     * A slice of the admission state guarded by its own lock.
+     * Buckets that have refilled completely and counters whose windows have both passed hold no information,
+     * so they are removed by a sweep that runs at most once per window, or sooner when the shard is full.
+     * Purchase counts are removed as soon as they drop back to zero, so they are bounded by the tickets sold.
+     */
+    private class Shard {
+        private final Map<String, TokenBucket> buckets = new HashMap<>();
+        private final Map<String, SlidingWindowCounter> counters = new HashMap<>();
+        private final Map<String, Integer> purchases = new HashMap<>();
+        private long lastSweepNanos = System.nanoTime();
+
+        synchronized boolean tryTake(String key, long now, double requestsPerSecond, int burst) {
+            sweepIfDue(now);
+            TokenBucket bucket = buckets.get(key);
+            if (bucket == null) {
+                if (!hasRoom(buckets, now)) {
+                    return false;
+                }
+                bucket = new TokenBucket();
+                bucket.requestsPerSecond = requestsPerSecond;
+                bucket.burst = burst;
+                bucket.tokens = burst;
+                bucket.lastRefillNanos = now;
+                buckets.put(key, bucket);
+            }
+            bucket.refill(now);
+            if (bucket.tokens < 1) {
+                return false;
+            }
+            bucket.tokens--;
+            return true;
+        }
+
+        synchronized void refund(String key) {
+            TokenBucket bucket = buckets.get(key);
+            if (bucket != null) {
+                bucket.tokens = Math.min(bucket.burst, bucket.tokens + 1);
+            }
+        }
+
+        /**
+         * Counts a request against the key's sliding window.
+         *
+         * @return the start of the window the request was counted into, or {@code NOT_COUNTED} if it was rejected.
+         */
+        synchronized long tryCount(String key, long now) {
+            SlidingWindowCounter counter = counters.get(key);
+            if (counter == null) {
+                if (!hasRoom(counters, now)) {
+                    return NOT_COUNTED;
+                }
+                counter = new SlidingWindowCounter();
+                counter.windowStartNanos = now;
+                counters.put(key, counter);
+            }
+            long elapsedWindows = (now - counter.windowStartNanos) / windowNanos;
+            if (elapsedWindows == 1) {
+                counter.previousCount = counter.currentCount;
+                counter.currentCount = 0;
+                counter.windowStartNanos += windowNanos;
+            } else if (elapsedWindows > 1) {
+                counter.previousCount = 0;
+                counter.currentCount = 0;
+                counter.windowStartNanos = now;
+            }
+            double overlap = 1.0 - (double) (now - counter.windowStartNanos) / windowNanos;
+            if (counter.previousCount * overlap + counter.currentCount >= sourceRequestsPerWindow) {
+                return NOT_COUNTED;
+            }
+            counter.currentCount++;
+            return counter.windowStartNanos;
+        }
+
+        /**
+         * Takes back a request counted by {@code tryCount} from the window it was counted into.
+         * If that window has since become the previous one, the refund comes off the previous count instead.
+         * If it has rolled out of the sliding window altogether, there is nothing left to refund.
+         */
+        synchronized void uncount(String key, long countedWindow) {
+            SlidingWindowCounter counter = counters.get(key);
+            if (counter == null) {
+                return;
+            }
+            if (counter.windowStartNanos == countedWindow) {
+                counter.currentCount = Math.max(0, counter.currentCount - 1);
+            } else if (counter.windowStartNanos - windowNanos == countedWindow) {
+                counter.previousCount = Math.max(0, counter.previousCount - 1);
+            }
+        }
+
+        synchronized boolean tryReserve(String key, int limit) {
+            int purchased = purchases.getOrDefault(key, 0);
+            if (purchased >= limit) {
+                return false;
+            }
+            purchases.put(key, purchased + 1);
+            return true;
+        }
+
+        synchronized void release(String key) {
+            int purchased = purchases.getOrDefault(key, 0);
+            if (purchased > 1) {
+                purchases.put(key, purchased - 1);
+            } else {
+                purchases.remove(key);
+            }
+        }
+
+        /**
+         * Checks whether a new key may be added to the map.
+         * If it is full, idle entries are swept first, but at most once per {@code FULL_SWEEP_INTERVAL_NANOS}.
+         */
+        private boolean hasRoom(Map<String, ?> map, long now) {
+            if (map.size() < MAX_KEYS_PER_SHARD) {
+                return true;
+            }
+            if (now - lastSweepNanos < FULL_SWEEP_INTERVAL_NANOS) {
+                return false;
+            }
+            sweep(now);
+            return map.size() < MAX_KEYS_PER_SHARD;
+        }
+
+        private void sweepIfDue(long now) {
+            if (now - lastSweepNanos >= windowNanos) {
+                sweep(now);
+            }
+        }
+
+        private void sweep(long now) {
+            lastSweepNanos = now;
+            Iterator<TokenBucket> bucketIterator = buckets.values().iterator();
+            while (bucketIterator.hasNext()) {
+                TokenBucket bucket = bucketIterator.next();
+                bucket.refill(now);
+                if (bucket.tokens >= bucket.burst) {
+                    bucketIterator.remove();
+                }
+            }
+            counters.values().removeIf(counter -> now - counter.windowStartNanos >= 2 * windowNanos);
+        }
+    }
+}
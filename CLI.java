@@ -6,9 +6,17 @@ import java.util.Scanner;
 /**
  * Command-line interface (CLI) for the ticket management system.
  * This class handles user inputs for configuration parameters and starts the system.
+ * Run with {@code --trace} to print a report of where time went in the ticket pool when the system halts.
  */
 public class CLI {
     public static void main(String[] args) {
+        // Enable ticket pool tracing if requested
+        for (String arg : args) {
+            if (arg.equals("--trace")) {
+                PoolTracer.setEnabled(true);
+            }
+        }
+
         // Create the scanner object to get inputs from user
         Scanner scanner = new Scanner(System.in);
 
@@ -97,9 +105,12 @@ public class CLI {
             vendorThread.start();
         }
 
+        // Initialize the AdmissionControl object so no single customer can drain the ticket pool
+        AdmissionControl admissionControl = new AdmissionControl(Math.max(1, maxTicketCapacity / customerRetrievalRate), totalTickets, customerRetrievalRate);
+
         // Create and start the customer threads
         for (int i = 0; i<customerRetrievalRate; i++) {
-            Customer customer = new Customer(ticketPool, maxTicketCapacity / customerRetrievalRate);
+            Customer customer = new Customer(ticketPool, maxTicketCapacity / customerRetrievalRate, admissionControl, "Customer-" + (i + 1), "cli");
             Thread customerThread = new Thread(customer);
             customerThread.start();
         }
@@ -120,6 +131,11 @@ public class CLI {
         System.out.println("Customer Retrieval Rate: " + customerRetrievalRate);
         System.out.println("Max Ticket Capacity: " + maxTicketCapacity);
 
+        // Display where time went in the ticket pool
+        if (PoolTracer.isEnabled()) {
+            PoolTracer.printReport();
+        }
+
         // Close the scanner object
         scanner.close();
     }
@@ -0,0 +1,126 @@
+package backend;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Runs the ticket management system as a local cluster for testing.
+ * Launches one JVM per PoolNode on the loopback interface, splits the total tickets between them,
+ * and runs customer threads that buy tickets through an InventoryCoordinator.
+ * Usage: {@code ClusterLauncher [nodes] [totalTickets] [maxTicketCapacity] [customers] [ticketsPerCustomer] [basePort]}
+ */
+public class ClusterLauncher {
+    public static void main(String[] args) {
+        // Default configuration, overridden by any command-line arguments
+        int[] settings = {3, 60, 10, 6, 12, 5700};
+        try {
+            for (int i = 0; i < args.length && i < settings.length; i++) {
+                settings[i] = Integer.parseInt(args[i]);
+                if (settings[i] <= 0) {
+                    throw new NumberFormatException(args[i]);
+                }
+            }
+        } catch (NumberFormatException e) {
+            System.out.println("Invalid input. Please enter positive integers.");
+            return;
+        }
+        int nodes = settings[0];
+        int totalTickets = settings[1];
+        int maxTicketCapacity = settings[2];
+        int customers = settings[3];
+        int ticketsPerCustomer = settings[4];
+        int basePort = settings[5];
+
+        List<Process> processes = new ArrayList<>();
+        InventoryCoordinator coordinator = new InventoryCoordinator();
+        try {
+            // Launch the node JVMs, giving the remainder of the tickets to the first nodes
+            for (int i = 0; i < nodes; i++) {
+                String nodeId = "node-" + (i + 1);
+                int allocation = totalTickets / nodes + (i < totalTickets % nodes ? 1 : 0);
+                int port = basePort + i;
+                processes.add(launchNode(nodeId, port, allocation, maxTicketCapacity));
+                coordinator.addNode(nodeId, new SocketTransport("127.0.0.1", port));
+                System.out.println("Started " + nodeId + " on port " + port + " with " + allocation + " tickets.");
+            }
+
+            // Create and start the customer threads
+            List<String> soldTickets = Collections.synchronizedList(new ArrayList<>());
+            List<Thread> customerThreads = new ArrayList<>();
+            for (int i = 0; i < customers; i++) {
+                String customerId = "Customer-" + (i + 1);
+                Thread customerThread = new Thread(() -> {
+                    for (int j = 0; j < ticketsPerCustomer; j++) {
+                        String ticket = coordinator.buyTicket(customerId);
+                        if (ticket == null) {
+                            System.out.println(customerId + " could not get a ticket. Event is sold out.");
+                            return;
+                        }
+                        soldTickets.add(ticket);
+                        System.out.println(customerId + " bought " + ticket);
+                    }
+                });
+                customerThread.start();
+                customerThreads.add(customerThread);
+            }
+            for (Thread customerThread : customerThreads) {
+                customerThread.join();
+            }
+
+            System.out.println("Tickets sold: " + soldTickets.size() + " of " + totalTickets);
+        } catch (IOException e) {
+            System.out.println("Error launching node..." + e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.out.println("Cluster halted.");
+        } finally {
+            coordinator.shutdown();
+            for (Process process : processes) {
+                process.destroy();
+            }
+        }
+    }
+
+    /**
+     * Launches a PoolNode in a new JVM using the current classpath and waits until it is listening.
+     * The node's output is echoed to this console, prefixed with its id.
+     */
+    private static Process launchNode(String nodeId, int port, int allocation, int maxTicketCapacity) throws IOException {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        ProcessBuilder builder = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                PoolNode.class.getName(), nodeId, String.valueOf(port), String.valueOf(allocation),
+                String.valueOf(maxTicketCapacity), String.valueOf(Math.max(1, maxTicketCapacity / 2)));
+        builder.redirectErrorStream(true);
+        Process process = builder.start();
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null && !line.startsWith("READY")) {
+            System.out.println("[" + nodeId + "] " + line);
+        }
+        if (line == null) {
+            throw new IOException("Node " + nodeId + " exited before it was ready.");
+        }
+
+        // Keep echoing the node's output so its buffer never fills up
+        Thread outputThread = new Thread(() -> {
+            try {
+                String output;
+                while ((output = reader.readLine()) != null) {
+                    System.out.println("[" + nodeId + "] " + output);
+                }
+            } catch (IOException e) {
+                // The node has exited
+            }
+        }, nodeId + "-output");
+        outputThread.setDaemon(true);
+        outputThread.start();
+        return process;
+    }
+}
@@ -13,6 +13,9 @@ public class Customer implements Runnable{
     private TicketPool ticketPool;
     private int numOfOrderedTickets;
     private List<Object> ticketList = Collections.synchronizedList(new ArrayList<>());
+    private AdmissionControl admissionControl;
+    private String customerId;
+    private String source;
 
     /**
      * Constructor for the Customer class with TicketPool object and numOfOrderedTickets to be passed in the parameters.
@@ -25,16 +28,35 @@ public class Customer implements Runnable{
         this.numOfOrderedTickets = numOfOrderedTickets;
     }
 
+    /**
+     * Constructor for the Customer class whose requests are checked by an AdmissionControl before reaching the TicketPool.
+     *
+     * @param ticketPool Ticket pool which tickets will be retrieved from.
+     * @param numOfOrderedTickets The number of ordered tickets for the customer to receive.
+     * @param admissionControl Admission control that enforces purchase and rate limits.
+     * @param customerId The identifier of the customer used for per-customer limits.
+     * @param source The identifier of the source used for per-source limits.
+     */
+    public Customer(TicketPool ticketPool, int numOfOrderedTickets, AdmissionControl admissionControl, String customerId, String source) {
+        this(ticketPool, numOfOrderedTickets);
+        this.admissionControl = admissionControl;
+        this.customerId = customerId;
+        this.source = source;
+    }
+
     /**
      * Retrieves tickets from the TicketPool.
      * If the pool is empty, the customer waits for a vendor to add more tickets.
      * This method runs in a separate thread for each customer.
      * The customer stops removing tickets if interrupted.
+     * If an AdmissionControl is set, each request is checked before reaching the pool.
+     * Rate-limited requests are retried after a delay and the customer stops once its purchase limit is reached.
      *
      * @see TicketPool#removeTicket()
      */
     @Override
     public void run() {
+        PoolTracer.setRole("Customer");
         try {
             // Wait for vendor to add tickets to the pool if empty.
             while (ticketPool.ticketList.isEmpty()) {
@@ -50,21 +72,42 @@ public class Customer implements Runnable{
             }
 
             // Retrieve the ordered number of tickets and return it to customer
-            for (int i = 0; i < numOfOrderedTickets; i++) {
+            while (ticketList.size() < numOfOrderedTickets) {
                 if (Thread.currentThread().isInterrupted()) {
                     System.out.println("Customer thread was interrupted during ticket extraction.");
                     return;  // Stop the thread if it's interrupted
                 }
 
+                // Reject the request before it reaches the pool lock if it exceeds the customer's limits
+                if (admissionControl != null) {
+                    AdmissionControl.Decision decision = admissionControl.tryAdmit(customerId, source);
+                    if (decision == AdmissionControl.Decision.LIMIT_REACHED) {
+                        System.out.println("Customer " + customerId + " has reached the purchase limit.");
+                        break;
+                    } else if (decision == AdmissionControl.Decision.RATE_LIMITED) {
+                        System.out.println("Customer " + customerId + " is sending requests too quickly. Retrying...");
+                        // Back off before retrying the same ticket
+                        Thread.sleep(1000);
+                        continue;
+                    }
+                }
+
                 String ticket = ticketPool.removeTicket();
                 if (ticket != null) {
                     // Add ticket if ticket is null
                     ticketList.add(ticket);
+                } else if (admissionControl != null) {
+                    // Hand back the reserved purchase slot since no ticket was retrieved
+                    admissionControl.release(customerId, source);
                 }
                 // Simulate time taken for customer to retrieve ticket
                 Thread.sleep(1000);
             }
-            System.out.println("Tickets successfully extracted from ticket pool!");
+            if (ticketList.size() == numOfOrderedTickets) {
+                System.out.println("Tickets successfully extracted from ticket pool!");
+            } else {
+                System.out.println("Only " + ticketList.size() + " of " + numOfOrderedTickets + " ordered tickets were extracted from ticket pool.");
+            }
 
             // Notify all vendor waiting vendor threads that space is available in the ticket pool
             synchronized (ticketPool) {
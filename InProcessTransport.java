@@ -0,0 +1,36 @@
+package backend;
+
+/**
+ * NodeTransport that calls a PoolNode running in the same JVM directly.
+ * Lets the InventoryCoordinator be exercised without launching separate node processes.
+ */
+public class InProcessTransport implements NodeTransport {
+    private PoolNode node;
+
+    /**
+     * Constructor for the InProcessTransport class with the PoolNode to be passed in the parameters.
+     *
+     * @param node The node that requests are sent to.
+     */
+    public InProcessTransport(PoolNode node) {
+        this.node = node;
+    }
+
+    /**
+     * Passes the request straight to the node.
+     *
+     * @param request The request line to send.
+     * @return the node's reply line.
+     */
+    @Override
+    public String send(String request) {
+        return node.handle(request);
+    }
+
+    /**
+     * Nothing to close, as no connection is held.
+     */
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,211 @@
+package backend;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Routes customers to the PoolNodes that share an event's tickets, and rebalances tickets between them.
+ * Each customer is routed to the same node every time, so that customers are spread evenly over the cluster.
+ * When a node runs dry, half of the allocation of the node with the most tickets left is moved over to it.
+ * If a node cannot be reached, its customers are routed to the next node.
+ * If a node is still releasing tickets, its customers back off and try again.
+ */
+public class InventoryCoordinator {
+    /**
+     * How long a customer waits before trying again when no node had a ticket ready.
+     */
+    private static final long BUSY_BACKOFF_MILLIS = 100;
+
+    private List<String> nodeIds = new ArrayList<>();
+    private List<NodeTransport> transports = new ArrayList<>();
+
+    /**
+     * One lock per node, held while tickets are moved to or from it.
+     */
+    private List<Object> nodeLocks = new ArrayList<>();
+
+    /**
+     * Adds a node to the cluster.
+     *
+     * @param nodeId The identifier of the node, used to label its tickets.
+     * @param transport The transport used to reach the node.
+     */
+    public void addNode(String nodeId, NodeTransport transport) {
+        nodeIds.add(nodeId);
+        transports.add(transport);
+        nodeLocks.add(new Object());
+    }
+
+    /**
+     * Buys a ticket for the customer from the cluster.
+     * Tries every node in turn, and keeps trying while any node replies that it is still releasing tickets.
+     *
+     * @param customerId The identifier of the customer buying the ticket.
+     * @return the ticket, labelled with the node it came from, or {@code null} if every node that replied is dry,
+     *         no node could be reached, or the thread was interrupted.
+     */
+    public String buyTicket(String customerId) {
+        int nodeCount = transports.size();
+        if (nodeCount == 0) {
+            System.out.println("No nodes have been added to the cluster.");
+            return null;
+        }
+        int home = Math.floorMod(customerId.hashCode(), nodeCount);
+        while (true) {
+            boolean busy = false;
+            for (int attempt = 0; attempt < nodeCount; attempt++) {
+                int index = (home + attempt) % nodeCount;
+                try {
+                    String reply = transports.get(index).send("BUY " + customerId);
+                    // Refill a dry node from the others once, then try it again
+                    if (reply.equals("DRY") && rebalance(index) > 0) {
+                        reply = transports.get(index).send("BUY " + customerId);
+                    }
+                    if (reply.startsWith("OK ")) {
+                        return nodeIds.get(index) + "/" + reply.substring(3);
+                    }
+                    if (reply.equals("BUSY")) {
+                        busy = true;
+                    }
+                } catch (IOException e) {
+                    System.out.println("Node " + nodeIds.get(index) + " could not be reached..." + e);
+                }
+            }
+
+            // The event is only sold out once no node is still releasing tickets
+            if (!busy) {
+                return null;
+            }
+            try {
+                Thread.sleep(BUSY_BACKOFF_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Moves half of the allocation of the node with the most tickets left to the given node.
+     * The donor is chosen without holding any lock, so a slow node only delays its own status reply.
+     * The move itself holds the locks of just the donor and the dry node, so rebalances between other nodes run in parallel,
+     * while two dry nodes cannot drain the same donor twice.
+     * If the grant to the dry node fails, the tickets are only handed back to the donor when the grant is known
+     * not to have been applied. Otherwise they are left unassigned, as returning them could oversell the event.
+     *
+     * @param dryIndex The index of the node that has run dry.
+     * @return the number of tickets the dry node can now release, or 0 if none could be moved to it.
+     */
+    public int rebalance(int dryIndex) {
+        int donorIndex = -1;
+        int donorAllocation = 0;
+        for (int i = 0; i < transports.size(); i++) {
+            if (i == dryIndex) {
+                continue;
+            }
+            int allocation = allocationOf(i);
+            if (allocation > donorAllocation) {
+                donorIndex = i;
+                donorAllocation = allocation;
+            }
+        }
+        if (donorIndex < 0) {
+            return 0;
+        }
+
+        // Always lock the lower index first, so two rebalances between the same nodes cannot deadlock
+        synchronized (nodeLocks.get(Math.min(dryIndex, donorIndex))) {
+            synchronized (nodeLocks.get(Math.max(dryIndex, donorIndex))) {
+                return moveTickets(donorIndex, dryIndex);
+            }
+        }
+    }
+
+    /**
+     * Moves half of the donor's allocation to the dry node. Must be called while holding both nodes' locks.
+     *
+     * @return the number of tickets the dry node can now release.
+     */
+    private int moveTickets(int donorIndex, int dryIndex) {
+        // Another rebalance may have refilled the dry node or drained the donor while this one waited for the locks
+        int dryAllocation = allocationOf(dryIndex);
+        if (dryAllocation != 0) {
+            return Math.max(0, dryAllocation);
+        }
+        int donorAllocation = allocationOf(donorIndex);
+        if (donorAllocation <= 0) {
+            return 0;
+        }
+
+        int moved;
+        try {
+            String[] revoked = transports.get(donorIndex).send("REVOKE " + (donorAllocation + 1) / 2).split(" ");
+            if (!revoked[0].equals("REVOKED")) {
+                throw new IllegalStateException("Unexpected reply: " + String.join(" ", revoked));
+            }
+            moved = Integer.parseInt(revoked[1]);
+        } catch (IOException | RuntimeException e) {
+            System.out.println("Error revoking tickets from node " + nodeIds.get(donorIndex) + "..." + e);
+            return 0;
+        }
+        if (moved == 0) {
+            return 0;
+        }
+
+        try {
+            String reply = transports.get(dryIndex).send("GRANT " + moved);
+            if (reply.equals("GRANTED " + moved)) {
+                System.out.println("Moved " + moved + " tickets from node " + nodeIds.get(donorIndex) + " to node " + nodeIds.get(dryIndex));
+                return moved;
+            }
+            // The node refused the grant, so nothing was applied
+            System.out.println("Node " + nodeIds.get(dryIndex) + " refused the grant: " + reply);
+        } catch (RequestNotSentException e) {
+            System.out.println("Error granting tickets to node " + nodeIds.get(dryIndex) + "..." + e);
+        } catch (IOException e) {
+            // The grant may have been applied before the reply was lost
+            System.out.println("Grant of " + moved + " tickets to node " + nodeIds.get(dryIndex) + " is unconfirmed. Tickets not returned to node " + nodeIds.get(donorIndex) + "..." + e);
+            return 0;
+        }
+        // Hand the tickets back to the donor so they are not lost
+        try {
+            transports.get(donorIndex).send("GRANT " + moved);
+        } catch (IOException e) {
+            System.out.println("Error returning " + moved + " tickets to node " + nodeIds.get(donorIndex) + "..." + e);
+        }
+        return 0;
+    }
+
+    /**
+     * Asks a node how many tickets it has left to release.
+     *
+     * @return the node's allocation, or -1 if it could not be read.
+     */
+    private int allocationOf(int index) {
+        try {
+            String[] status = transports.get(index).send("STATUS").split(" ");
+            if (!status[0].equals("STATUS")) {
+                throw new IllegalStateException("Unexpected reply: " + String.join(" ", status));
+            }
+            return Integer.parseInt(status[1]);
+        } catch (IOException | RuntimeException e) {
+            System.out.println("Could not read status of node " + nodeIds.get(index) + "..." + e);
+            return -1;
+        }
+    }
+
+    /**
+     * Stops every node and closes the transports.
+     */
+    public void shutdown() {
+        for (int i = 0; i < transports.size(); i++) {
+            try {
+                transports.get(i).send("SHUTDOWN");
+            } catch (IOException e) {
+                System.out.println("Node " + nodeIds.get(i) + " could not be reached..." + e);
+            }
+            transports.get(i).close();
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package backend;
+
+import java.io.IOException;
+
+/**
+ * Represents the connection between the InventoryCoordinator and a single PoolNode.
+ * Requests and replies are single lines of text, as handled by {@link PoolNode#handle(String)}.
+ * Implementations must be safe to use from multiple customer threads at once.
+ */
+public interface NodeTransport {
+    /**
+     * Sends a request to the node and waits for its reply.
+     *
+     * @param request The request line to send.
+     * @return the node's reply line.
+     * @throws RequestNotSentException if the request is known not to have reached the node.
+     * @throws IOException if the node cannot be reached, or the reply was lost after the request was sent.
+     */
+    String send(String request) throws IOException;
+
+    /**
+     * Closes the connection to the node.
+     */
+    void close();
+}
@@ -0,0 +1,240 @@
+package backend;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Represents one node of a cluster that sells a slice of an event's tickets from its own TicketPool.
+ * The node's allocation is the number of tickets it may still release into its pool.
+ * A release thread moves tickets from the allocation into the pool in batches, the same way a Vendor does.
+ * The InventoryCoordinator can move allocation between nodes when one of them runs dry.
+ * Requests are single lines of text:
+ * - {@code BUY <customerId>} replies {@code OK <ticket>}, {@code DRY} if the node has nothing left to sell,
+ *   or {@code BUSY} if no ticket was released in time.
+ * - {@code STATUS} replies {@code STATUS <allocation> <pooled>}.
+ * - {@code GRANT <count>} adds to the allocation and replies {@code GRANTED <count>}.
+ * - {@code REVOKE <count>} takes up to count from the allocation and replies {@code REVOKED <taken>}.
+ * - {@code SHUTDOWN} stops the node and replies {@code BYE}.
+ */
+public class PoolNode {
+    /**
+     * How long a BUY request waits for the release thread before replying BUSY.
+     */
+    private static final long BUY_TIMEOUT_MILLIS = 2000;
+
+    private String nodeId;
+    private TicketPool ticketPool;
+    private int ticketsPerBatch;
+    private AtomicInteger allocation;
+
+    /**
+     * Tickets taken from the allocation that the release thread has not added to the pool yet.
+     */
+    private AtomicInteger inFlight = new AtomicInteger();
+    private Thread releaseThread;
+    private volatile ServerSocket serverSocket;
+    private volatile boolean running = true;
+
+    /**
+     * Constructor for the PoolNode class with its id, allocation, pool capacity and batch size to be passed in the parameters.
+     *
+     * @param nodeId The identifier of the node.
+     * @param allocation The number of tickets the node starts with.
+     * @param maxTicketCapacity The maximum number of tickets the node's pool can hold.
+     * @param ticketsPerBatch The number of tickets released into the pool per batch.
+     */
+    public PoolNode(String nodeId, int allocation, int maxTicketCapacity, int ticketsPerBatch) {
+        this.nodeId = nodeId;
+        this.allocation = new AtomicInteger(allocation);
+        this.ticketPool = new TicketPool(maxTicketCapacity);
+        // A batch larger than the pool could never be added
+        this.ticketsPerBatch = Math.max(1, Math.min(ticketsPerBatch, maxTicketCapacity));
+    }
+
+    /**
+     * Starts the release thread that moves tickets from the allocation into the pool.
+     */
+    public void start() {
+        releaseThread = new Thread(this::releaseTickets, nodeId + "-release");
+        releaseThread.setDaemon(true);
+        releaseThread.start();
+    }
+
+    /**
+     * Stops the release thread and the server, if one is running.
+     */
+    public void stop() {
+        running = false;
+        if (releaseThread != null) {
+            releaseThread.interrupt();
+        }
+        ServerSocket socket = serverSocket;
+        if (socket != null) {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                System.out.println("Error closing node server..." + e);
+            }
+        }
+    }
+
+    /**
+     * Handles a single request line and returns the reply line.
+     *
+     * @param request The request line.
+     * @return the reply line.
+     */
+    public String handle(String request) {
+        String[] parts = request.trim().split(" ");
+        try {
+            switch (parts[0]) {
+                case "BUY":
+                    return buy();
+                case "STATUS":
+                    return "STATUS " + allocation.get() + " " + ticketPool.ticketList.size();
+                case "GRANT":
+                    int granted = Integer.parseInt(parts[1]);
+                    if (granted <= 0) {
+                        return "ERROR Invalid request: " + request;
+                    }
+                    allocation.addAndGet(granted);
+                    return "GRANTED " + granted;
+                case "REVOKE":
+                    int revoked = Integer.parseInt(parts[1]);
+                    if (revoked <= 0) {
+                        return "ERROR Invalid request: " + request;
+                    }
+                    return "REVOKED " + take(revoked);
+                case "SHUTDOWN":
+                    stop();
+                    return "BYE";
+                default:
+                    return "ERROR Unknown request: " + request;
+            }
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            return "ERROR Invalid request: " + request;
+        }
+    }
+
+    /**
+     * Listens for requests on the loopback interface until the node is stopped.
+     * Each connection is served by its own thread.
+     *
+     * @param port The port to listen on.
+     * @throws IOException if the port cannot be opened.
+     */
+    public void serve(int port) throws IOException {
+        serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        // Tell the launcher the node is ready to accept connections
+        System.out.println("READY " + nodeId + " " + port);
+        while (running) {
+            try {
+                Socket socket = serverSocket.accept();
+                // Not a daemon, so the reply to SHUTDOWN is sent before the JVM exits
+                new Thread(() -> serveConnection(socket), nodeId + "-connection").start();
+            } catch (IOException e) {
+                if (running) {
+                    System.out.println("Error accepting connection..." + e);
+                }
+            }
+        }
+    }
+
+    private void serveConnection(Socket socket) {
+        // Requests on a connection are made on behalf of customers
+        PoolTracer.setRole("Customer");
+        try (Socket s = socket;
+             BufferedReader reader = new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8));
+             PrintWriter writer = new PrintWriter(s.getOutputStream(), true, StandardCharsets.UTF_8)) {
+            String request;
+            while ((request = reader.readLine()) != null) {
+                writer.println(handle(request));
+            }
+        } catch (IOException e) {
+            if (running) {
+                System.out.println("Connection to coordinator lost..." + e);
+            }
+        }
+    }
+
+    private String buy() {
+        // Check the counters before polling the pool, so a batch added in between is not missed
+        if (allocation.get() == 0 && inFlight.get() == 0) {
+            String ticket = ticketPool.pollTicket();
+            return ticket != null ? "OK " + ticket : "DRY";
+        }
+        // Tickets are still to be released, so wait for the release thread to add them
+        String ticket = ticketPool.removeTicket(BUY_TIMEOUT_MILLIS);
+        return ticket != null ? "OK " + ticket : "BUSY";
+    }
+
+    /**
+     * Takes up to count tickets from the allocation.
+     *
+     * @return the number of tickets taken.
+     */
+    private int take(int count) {
+        while (true) {
+            int available = allocation.get();
+            int taken = Math.min(available, Math.max(0, count));
+            if (allocation.compareAndSet(available, available - taken)) {
+                return taken;
+            }
+        }
+    }
+
+    private void releaseTickets() {
+        // The release thread does a vendor's job for this node
+        PoolTracer.setRole("Vendor");
+        try {
+            while (running) {
+                // Mark the batch in flight before taking it, so buyers never see the node as dry in between
+                inFlight.addAndGet(ticketsPerBatch);
+                int batch = take(ticketsPerBatch);
+                inFlight.addAndGet(batch - ticketsPerBatch);
+                if (batch == 0) {
+                    // Nothing left to release until the coordinator grants more
+                    Thread.sleep(100);
+                    continue;
+                }
+                ticketPool.addTickets(batch);
+                inFlight.addAndGet(-batch);
+                if (Thread.currentThread().isInterrupted()) {
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        System.out.println("Node " + nodeId + " stopped releasing tickets.");
+    }
+
+    /**
+     * Starts a node in its own JVM.
+     * Usage: {@code PoolNode <nodeId> <port> <allocation> <maxTicketCapacity> <ticketsPerBatch>}
+     *
+     * @param args the command-line arguments
+     */
+    public static void main(String[] args) {
+        if (args.length != 5) {
+            System.out.println("Usage: PoolNode <nodeId> <port> <allocation> <maxTicketCapacity> <ticketsPerBatch>");
+            return;
+        }
+        try {
+            PoolNode node = new PoolNode(args[0], Integer.parseInt(args[2]), Integer.parseInt(args[3]), Integer.parseInt(args[4]));
+            node.start();
+            node.serve(Integer.parseInt(args[1]));
+        } catch (NumberFormatException e) {
+            System.out.println("Invalid input. Please enter positive integers for port, allocation, capacity and batch size.");
+        } catch (IOException e) {
+            System.out.println("Error starting node server..." + e);
+        }
+    }
+}
@@ -0,0 +1,431 @@
+package backend;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Records where time goes inside TicketPool operations, split into phases:
+ * - Acquire: waiting to enter the pool's monitor.
+ * - Wait: parked in {@code wait()} until a vendor or customer signals, including re-entering the monitor.
+ * - Mutate: adding tickets to or removing them from the list.
+ * - Print: writing status messages to the console.
+ * - Signal: calling {@code notifyAll()}.
+ * Each thread writes into its own buffer, so recording takes no locks and threads never contend on the tracer.
+ * Buffers of threads that have exited are folded into per-role totals and dropped.
+ * Tracing into the buffers is off by default and is turned on with {@link #setEnabled(boolean)} or {@code -Dticketpool.trace=true}.
+ * Independently of that, every operation is committed as a {@link TicketPoolEvent} whenever a JFR recording
+ * has the event enabled, e.g. one started with {@code jcmd <pid> JFR.start}.
+ */
+public class PoolTracer {
+    /**
+     * TicketPool operations that are traced.
+     */
+    public enum Operation { ADD, REMOVE, POLL }
+
+    /**
+     * Phases of a TicketPool operation.
+     */
+    public enum Phase { ACQUIRE, WAIT, MUTATE, PRINT, SIGNAL }
+
+    /**
+     * Number of recent operations kept per thread.
+     */
+    private static final int BUFFER_CAPACITY = 1024;
+
+    private static final int OPERATIONS = Operation.values().length;
+    private static final int PHASES = Phase.values().length;
+
+    /**
+     * Fields per recorded operation: the operation, then the time spent in each phase.
+     */
+    private static final int RECORD_SIZE = 1 + PHASES;
+
+    private static volatile boolean enabled = Boolean.getBoolean("ticketpool.trace");
+
+    /**
+     * Shared event used only to check whether a JFR recording has TicketPoolEvent enabled, so no event
+     * object is allocated per operation unless one is going to be committed.
+     */
+    private static final TicketPoolEvent jfrProbe = new TicketPoolEvent();
+
+    /**
+     * Buffers of live threads that have recorded an operation, read when building the report.
+     */
+    private static final ConcurrentLinkedQueue<ThreadBuffer> buffers = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Totals per role of threads that have exited: [operation][phase], with the operation count in the extra last column.
+     * Guarded by its own lock.
+     */
+    private static final Map<String, long[][]> retiredTotals = new LinkedHashMap<>();
+    private static final Map<String, long[][]> retiredSlowest = new LinkedHashMap<>();
+    private static final Map<String, Integer> retiredThreads = new LinkedHashMap<>();
+
+    private static final ThreadLocal<ThreadBuffer> currentBuffer = ThreadLocal.withInitial(ThreadBuffer::new);
+
+    private static final ThreadLocal<String> currentRole = ThreadLocal.withInitial(() -> "Other");
+
+    private PoolTracer() {
+    }
+
+    /**
+     * Turns tracing on or off.
+     *
+     * @param on {@code true} to record TicketPool operations.
+     */
+    public static void setEnabled(boolean on) {
+        enabled = on;
+    }
+
+    /**
+     * Checks whether tracing is on.
+     *
+     * @return {@code true} if TicketPool operations are being recorded.
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Sets the role of the current thread, used to group the report (e.g. "Vendor" or "Customer").
+     *
+     * @param role The role of the current thread.
+     */
+    public static void setRole(String role) {
+        currentRole.set(role);
+    }
+
+    /**
+     * Starts timing an operation on the current thread. Called before entering the pool's monitor.
+     *
+     * @param operation The operation being started.
+     */
+    public static void begin(Operation operation) {
+        boolean tracing = enabled;
+        boolean recording = jfrProbe.isEnabled();
+        if (!tracing && !recording) {
+            return;
+        }
+        ThreadBuffer buffer = currentBuffer.get();
+        if (tracing && buffer.records == null) {
+            register(buffer);
+        }
+        buffer.tracing = tracing;
+        buffer.role = currentRole.get();
+        buffer.operation = operation;
+        Arrays.fill(buffer.phaseNanos, 0);
+        if (recording) {
+            buffer.event = new TicketPoolEvent();
+            buffer.event.begin();
+        }
+        buffer.active = true;
+        buffer.lastMark = System.nanoTime();
+        if (tracing) {
+            // Publish the operation as in progress, so the report can show threads that are stuck in it
+            buffer.reportedRole = buffer.role;
+            buffer.phaseStartNanos = buffer.lastMark;
+            buffer.inProgress = true;
+        }
+    }
+
+    /**
+     * Adds the time since the last mark to the given phase of the current operation.
+     *
+     * @param phase The phase that has just finished.
+     */
+    public static void mark(Phase phase) {
+        if (!enabled && !jfrProbe.isEnabled()) {
+            return;
+        }
+        ThreadBuffer buffer = currentBuffer.get();
+        if (buffer.active) {
+            long now = System.nanoTime();
+            buffer.phaseNanos[phase.ordinal()] += now - buffer.lastMark;
+            buffer.lastMark = now;
+            if (buffer.tracing) {
+                buffer.phaseStartNanos = now;
+            }
+        }
+    }
+
+    /**
+     * Finishes the current operation, storing it in the thread's buffer and committing its JFR event.
+     */
+    public static void end() {
+        if (!enabled && !jfrProbe.isEnabled()) {
+            return;
+        }
+        ThreadBuffer buffer = currentBuffer.get();
+        if (!buffer.active) {
+            return;
+        }
+        buffer.active = false;
+        if (buffer.tracing) {
+            buffer.record();
+            buffer.inProgress = false;
+        }
+
+        TicketPoolEvent event = buffer.event;
+        if (event == null) {
+            return;
+        }
+        buffer.event = null;
+        event.end();
+        if (event.shouldCommit()) {
+            event.operation = buffer.operation.name();
+            event.role = buffer.role;
+            event.acquireNanos = buffer.phaseNanos[Phase.ACQUIRE.ordinal()];
+            event.waitNanos = buffer.phaseNanos[Phase.WAIT.ordinal()];
+            event.mutateNanos = buffer.phaseNanos[Phase.MUTATE.ordinal()];
+            event.printNanos = buffer.phaseNanos[Phase.PRINT.ordinal()];
+            event.signalNanos = buffer.phaseNanos[Phase.SIGNAL.ordinal()];
+            event.commit();
+        }
+    }
+
+    /**
+     * Builds a report of where time went in the TicketPool, grouped by thread role and operation.
+     * For each group, shows the number of operations, the total and average time per phase,
+     * each phase's share of the total, and the slowest operation still held in the threads' buffers.
+     * Operations still in progress are listed per role with the time spent so far in their current phase.
+     * A thread blocked on the monitor is shown as ACQUIRE, and a thread parked in {@code wait()} as WAIT.
+     *
+     * @return the report as text.
+     */
+    public static String report() {
+        pruneExitedThreads();
+
+        // Totals per role: [operation][phase], with the operation count in the extra last column
+        Map<String, long[][]> totalsByRole = new LinkedHashMap<>();
+        // Phases of the slowest recorded operation per role: [operation][phase]
+        Map<String, long[][]> slowestByRole = new LinkedHashMap<>();
+        Map<String, Integer> threadsByRole = new LinkedHashMap<>();
+        Map<String, InProgress> inProgressByRole = new LinkedHashMap<>();
+        synchronized (retiredTotals) {
+            for (Map.Entry<String, long[][]> entry : retiredTotals.entrySet()) {
+                long[][] totals = totalsByRole.computeIfAbsent(entry.getKey(), r -> new long[OPERATIONS][PHASES + 1]);
+                addTotals(totals, entry.getValue());
+            }
+            for (Map.Entry<String, long[][]> entry : retiredSlowest.entrySet()) {
+                long[][] slowest = slowestByRole.computeIfAbsent(entry.getKey(), r -> new long[OPERATIONS][PHASES]);
+                for (int op = 0; op < OPERATIONS; op++) {
+                    slowest[op] = entry.getValue()[op].clone();
+                }
+            }
+            threadsByRole.putAll(retiredThreads);
+        }
+
+        long now = System.nanoTime();
+        for (ThreadBuffer buffer : buffers) {
+            long count = buffer.count;
+            boolean inProgress = buffer.inProgress;
+            if (count == 0 && !inProgress) {
+                continue;
+            }
+            String role = buffer.reportedRole;
+            threadsByRole.merge(role, 1, Integer::sum);
+            long[][] totals = totalsByRole.computeIfAbsent(role, r -> new long[OPERATIONS][PHASES + 1]);
+            long[][] slowest = slowestByRole.computeIfAbsent(role, r -> new long[OPERATIONS][PHASES]);
+            addTotals(totals, buffer.totals);
+            addSlowest(slowest, buffer, count);
+            if (inProgress) {
+                inProgressByRole.computeIfAbsent(role, r -> new InProgress())
+                        .add(stateOf(buffer.owner), now - buffer.phaseStartNanos);
+            }
+        }
+
+        StringBuilder report = new StringBuilder("Ticket pool trace report\n");
+        if (threadsByRole.isEmpty()) {
+            report.append("No operations recorded. Enable tracing with --trace or -Dticketpool.trace=true.\n");
+            return report.toString();
+        }
+        for (Map.Entry<String, Integer> entry : threadsByRole.entrySet()) {
+            String role = entry.getKey();
+            report.append(role).append(" (").append(entry.getValue()).append(" threads)\n");
+            long[][] roleTotals = totalsByRole.get(role);
+            long[][] roleSlowest = slowestByRole.get(role);
+            for (Operation operation : Operation.values()) {
+                long[] totals = roleTotals[operation.ordinal()];
+                long operations = totals[PHASES];
+                if (operations == 0) {
+                    continue;
+                }
+                long total = sum(totals) - operations;
+                report.append(String.format("  %-6s %8d ops, %10.3f ms total%n", operation, operations, total / 1e6));
+                for (Phase phase : Phase.values()) {
+                    long nanos = totals[phase.ordinal()];
+                    report.append(String.format("    %-7s %10.3f ms  avg %9.3f us  %5.1f%%%n", phase, nanos / 1e6,
+                            nanos / 1e3 / operations, total == 0 ? 0.0 : 100.0 * nanos / total));
+                }
+                long[] slowest = roleSlowest[operation.ordinal()];
+                report.append(String.format("    slowest recent: %.3f ms (%s)%n", sum(slowest) / 1e6, hottestPhase(slowest)));
+            }
+            InProgress inProgress = inProgressByRole.get(role);
+            if (inProgress != null) {
+                report.append(String.format("  in progress: %d ops (ACQUIRE %d, WAIT %d, RUNNING %d), longest %.3f ms in %s%n",
+                        inProgress.acquiring + inProgress.waiting + inProgress.running, inProgress.acquiring,
+                        inProgress.waiting, inProgress.running, inProgress.longestNanos / 1e6, inProgress.longestState));
+            }
+        }
+        return report.toString();
+    }
+
+    /**
+     * Prints the report to the console.
+     */
+    public static void printReport() {
+        System.out.print(report());
+    }
+
+    private static void register(ThreadBuffer buffer) {
+        // Drop the buffers of exited threads whenever a new one is added, so they cannot pile up
+        pruneExitedThreads();
+        buffer.records = new long[BUFFER_CAPACITY * RECORD_SIZE];
+        buffers.add(buffer);
+    }
+
+    /**
+     * Folds the totals and slowest operations of threads that have exited into the retired totals and drops their buffers.
+     */
+    private static void pruneExitedThreads() {
+        synchronized (retiredTotals) {
+            Iterator<ThreadBuffer> iterator = buffers.iterator();
+            while (iterator.hasNext()) {
+                ThreadBuffer buffer = iterator.next();
+                if (buffer.owner.isAlive()) {
+                    continue;
+                }
+                iterator.remove();
+                if (buffer.count > 0) {
+                    String role = buffer.reportedRole;
+                    addTotals(retiredTotals.computeIfAbsent(role, r -> new long[OPERATIONS][PHASES + 1]), buffer.totals);
+                    addSlowest(retiredSlowest.computeIfAbsent(role, r -> new long[OPERATIONS][PHASES]), buffer, buffer.count);
+                    retiredThreads.merge(role, 1, Integer::sum);
+                }
+            }
+        }
+    }
+
+    private static void addTotals(long[][] into, long[][] from) {
+        for (int op = 0; op < OPERATIONS; op++) {
+            for (int phase = 0; phase <= PHASES; phase++) {
+                into[op][phase] += from[op][phase];
+            }
+        }
+    }
+
+    /**
+     * Keeps, per operation, the phases of the slowest operation among the records still in the buffer's ring.
+     */
+    private static void addSlowest(long[][] slowest, ThreadBuffer buffer, long count) {
+        long retained = Math.min(count, BUFFER_CAPACITY);
+        for (long i = count - retained; i < count; i++) {
+            int offset = (int) (i % BUFFER_CAPACITY) * RECORD_SIZE;
+            int op = (int) buffer.records[offset];
+            long total = 0;
+            for (int phase = 0; phase < PHASES; phase++) {
+                total += buffer.records[offset + 1 + phase];
+            }
+            if (total > sum(slowest[op])) {
+                System.arraycopy(buffer.records, offset + 1, slowest[op], 0, PHASES);
+            }
+        }
+    }
+
+    private static String stateOf(Thread thread) {
+        switch (thread.getState()) {
+            case BLOCKED:
+                return "ACQUIRE";
+            case WAITING:
+            case TIMED_WAITING:
+                return "WAIT";
+            default:
+                return "RUNNING";
+        }
+    }
+
+    private static long sum(long[] values) {
+        long total = 0;
+        for (long value : values) {
+            total += value;
+        }
+        return total;
+    }
+
+    private static Phase hottestPhase(long[] phaseNanos) {
+        Phase hottest = Phase.ACQUIRE;
+        for (Phase phase : Phase.values()) {
+            if (phaseNanos[phase.ordinal()] > phaseNanos[hottest.ordinal()]) {
+                hottest = phase;
+            }
+        }
+        return hottest;
+    }
+
+    /**
+     * Operations in progress for one role, counted by what their threads are doing.
+     */
+    private static class InProgress {
+        private int acquiring;
+        private int waiting;
+        private int running;
+        private long longestNanos = -1;
+        private String longestState;
+
+        void add(String state, long elapsedNanos) {
+            if (state.equals("ACQUIRE")) {
+                acquiring++;
+            } else if (state.equals("WAIT")) {
+                waiting++;
+            } else {
+                running++;
+            }
+            if (elapsedNanos > longestNanos) {
+                longestNanos = elapsedNanos;
+                longestState = state;
+            }
+        }
+    }
+
+    /**
+     * Per-thread buffer of recent operations and running totals.
+     * Only the owning thread writes to it. The count is volatile and is bumped after each record is written,
+     * so a reader sees complete records, apart from the oldest ones if the owner wraps around while the report is built.
+     * The ring of records is only allocated once the thread records an operation with tracing on.
+     */
+    private static class ThreadBuffer {
+        private final Thread owner = Thread.currentThread();
+        private long[] records;
+        private final long[][] totals = new long[OPERATIONS][PHASES + 1];
+        private volatile long count;
+        private volatile String reportedRole = "Other";
+        private volatile boolean inProgress;
+        private volatile long phaseStartNanos;
+
+        // State of the operation in progress, only touched by the owning thread
+        private boolean active;
+        private boolean tracing;
+        private Operation operation;
+        private String role;
+        private final long[] phaseNanos = new long[PHASES];
+        private long lastMark;
+        private TicketPoolEvent event;
+
+        void record() {
+            int offset = (int) (count % BUFFER_CAPACITY) * RECORD_SIZE;
+            records[offset] = operation.ordinal();
+            System.arraycopy(phaseNanos, 0, records, offset + 1, PHASES);
+            long[] operationTotals = totals[operation.ordinal()];
+            for (int phase = 0; phase < PHASES; phase++) {
+                operationTotals[phase] += phaseNanos[phase];
+            }
+            operationTotals[PHASES]++;
+            reportedRole = role;
+            // Publish the record only after it is fully written
+            count = count + 1;
+        }
+    }
+}
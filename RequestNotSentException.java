@@ -0,0 +1,21 @@
+package backend;
+
+import java.io.IOException;
+
+/**
+ * Thrown by a NodeTransport when a request is known not to have reached the node.
+ * Unlike other IOExceptions, the caller can be sure the node did not act on the request.
+ */
+public class RequestNotSentException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Constructor for the RequestNotSentException class with a message and cause to be passed in the parameters.
+     *
+     * @param message The reason the request was not sent.
+     * @param cause The underlying error, or {@code null} if there is none.
+     */
+    public RequestNotSentException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
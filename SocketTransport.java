@@ -0,0 +1,117 @@
+package backend;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * NodeTransport that talks to a PoolNode in another JVM over TCP.
+ * Connections are kept open and reused, and a new one is opened whenever all existing ones are busy,
+ * so customers waiting on one node's reply do not hold up other customers.
+ * Connecting and waiting for a reply are both bounded, so a node that is alive but stalled cannot block customers forever.
+ */
+public class SocketTransport implements NodeTransport {
+    /**
+     * How long to wait for a connection to the node to be accepted.
+     */
+    private static final int CONNECT_TIMEOUT_MILLIS = 1000;
+
+    /**
+     * How long to wait for a reply. Longer than a node waits on a BUY request, so a BUSY reply arrives in time.
+     */
+    private static final int READ_TIMEOUT_MILLIS = 5000;
+
+    private String host;
+    private int port;
+    private ConcurrentLinkedQueue<Connection> idleConnections = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Constructor for the SocketTransport class with the host and port of the node to be passed in the parameters.
+     *
+     * @param host The host the node is listening on.
+     * @param port The port the node is listening on.
+     */
+    public SocketTransport(String host, int port) {
+        this.host = host;
+        this.port = port;
+    }
+
+    /**
+     * Sends the request over an idle connection, opening a new one if none is available.
+     * Connections that fail are discarded rather than reused.
+     *
+     * @param request The request line to send.
+     * @return the node's reply line.
+     * @throws RequestNotSentException if the connection could not be opened in time or the request could not be written.
+     * @throws IOException if the node closes the connection or does not reply in time. The request may have been applied.
+     */
+    @Override
+    public String send(String request) throws IOException {
+        Connection connection = idleConnections.poll();
+        if (connection == null) {
+            try {
+                Socket socket = new Socket();
+                socket.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT_MILLIS);
+                socket.setSoTimeout(READ_TIMEOUT_MILLIS);
+                connection = new Connection(socket);
+            } catch (IOException e) {
+                throw new RequestNotSentException("Could not connect to node at " + host + ":" + port, e);
+            }
+        }
+        connection.writer.println(request);
+        if (connection.writer.checkError()) {
+            connection.close();
+            throw new RequestNotSentException("Could not send request to node at " + host + ":" + port, null);
+        }
+        try {
+            String reply = connection.reader.readLine();
+            if (reply == null) {
+                throw new IOException("Node at " + host + ":" + port + " closed the connection.");
+            }
+            idleConnections.offer(connection);
+            return reply;
+        } catch (IOException e) {
+            connection.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Closes all idle connections to the node.
+     */
+    @Override
+    public void close() {
+        Connection connection;
+        while ((connection = idleConnections.poll()) != null) {
+            connection.close();
+        }
+    }
+
+    /**
+     * A single open socket with its reader and writer.
+     */
+    private static class Connection {
+        private Socket socket;
+        private BufferedReader reader;
+        private PrintWriter writer;
+
+        Connection(Socket socket) throws IOException {
+            this.socket = socket;
+            this.reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            this.writer = new PrintWriter(socket.getOutputStream(), true, StandardCharsets.UTF_8);
+        }
+
+        void close() {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                System.out.println("Error closing connection to node..." + e);
+            }
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package frontend;
 
+import backend.AdmissionControl;
 import backend.Customer;
 import backend.TicketPool;
 import backend.Vendor;
@@ -145,9 +146,12 @@ public class TicketManagementApp extends Application {
                     vendorThreadsList.add(vendorThread);
                 }
 
+                // Initialize AdmissionControl class to enforce purchase and rate limits per customer
+                AdmissionControl admissionControl = new AdmissionControl(Math.max(1, maxTicketCapacity / customerRetrievalRate), totalTickets, customerRetrievalRate);
+
                 // Start customer threads
                 for (int i = 0; i < customerRetrievalRate; i++) {
-                    Customer customer = new Customer(ticketPool, maxTicketCapacity / customerRetrievalRate);
+                    Customer customer = new Customer(ticketPool, maxTicketCapacity / customerRetrievalRate, admissionControl, "Customer-" + (i + 1), "gui");
                     Thread customerThread = new Thread(customer);
                     customerThread.start();
                     // Add customer threads to customerThreadsList
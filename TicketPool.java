@@ -9,6 +9,7 @@ import java.util.List;
  * Vendors add tickets to the pool
  * Customers retrieve tickets from the pool by removing them.
  * Synchronization for thread-safe access to the pool.
+ * Each operation is timed by the PoolTracer when tracing is enabled.
  */
 
 public class TicketPool {
@@ -40,23 +41,34 @@ public class TicketPool {
      * @param count the number of tickets to add
      * @throws InterruptedException if the thread is interrupted while waiting
      */
-    public synchronized void addTickets(int count) {
+    public void addTickets(int count) {
+        PoolTracer.begin(PoolTracer.Operation.ADD);
         try {
-            while (ticketList.size() + count > maxTicketCapacity) {
-                System.out.println("Cannot add tickets beyond maximum capacity: " + maxTicketCapacity);
-                wait();
+            synchronized (this) {
+                PoolTracer.mark(PoolTracer.Phase.ACQUIRE);
+                while (ticketList.size() + count > maxTicketCapacity) {
+                    System.out.println("Cannot add tickets beyond maximum capacity: " + maxTicketCapacity);
+                    PoolTracer.mark(PoolTracer.Phase.PRINT);
+                    wait();
+                    PoolTracer.mark(PoolTracer.Phase.WAIT);
+                }
+                for (int i = 0; i < count; i++) {
+                    ticketList.add("Ticket no." + ticketCounter++);
+                }
+                PoolTracer.mark(PoolTracer.Phase.MUTATE);
+                System.out.println("Tickets (" + count + ") added to ticket pool successfully!");
+                PoolTracer.mark(PoolTracer.Phase.PRINT);
+                // Notify all waiting customer threads that tickets are available in the ticketPool.
+                notifyAll();
+                PoolTracer.mark(PoolTracer.Phase.SIGNAL);
             }
-            for (int i = 0; i < count; i++) {
-                ticketList.add("Ticket no." + ticketCounter++);
-            }
-            System.out.println("Tickets (" + count + ") added to ticket pool successfully!");
-            // Notify all waiting customer threads that tickets are available in the ticketPool.
-            notifyAll();
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
             System.out.println("Vendor thread interrupted.");
         } catch (Exception e) {
             System.out.println("An error occurred: " + e);
+        } finally {
+            PoolTracer.end();
         }
     }
 
@@ -67,22 +79,95 @@ public class TicketPool {
      * @return the ticket retrieved from the pool, or {@code null} if interrupted while waiting
      * @throws InterruptedException if the thread is interrupted while waiting
      */
-    public synchronized String removeTicket() {
-        while (ticketList.isEmpty()) {
-            try {
-                System.out.println("Ticket pool is empty. Please wait until a vendor adds more tickets the pool");
-                wait();
-            } catch(InterruptedException e) {
-                Thread.currentThread().interrupt();
-                System.out.println("Error while waiting to remove ticket.");
-                return null;
+    public String removeTicket() {
+        PoolTracer.begin(PoolTracer.Operation.REMOVE);
+        try {
+            synchronized (this) {
+                PoolTracer.mark(PoolTracer.Phase.ACQUIRE);
+                while (ticketList.isEmpty()) {
+                    try {
+                        System.out.println("Ticket pool is empty. Please wait until a vendor adds more tickets the pool");
+                        PoolTracer.mark(PoolTracer.Phase.PRINT);
+                        wait();
+                        PoolTracer.mark(PoolTracer.Phase.WAIT);
+                    } catch(InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        System.out.println("Error while waiting to remove ticket.");
+                        return null;
+                    }
+                }
+                return takeTicket();
             }
+        } finally {
+            PoolTracer.end();
         }
+    }
+
+    /**
+     * Removes and returns a ticket from the ticket pool, waiting at most the given time for a vendor to add one.
+     *
+     * @param timeoutMillis the maximum time to wait in milliseconds
+     * @return the ticket retrieved from the pool, or {@code null} if none was added in time or interrupted while waiting
+     */
+    public String removeTicket(long timeoutMillis) {
+        PoolTracer.begin(PoolTracer.Operation.REMOVE);
+        try {
+            synchronized (this) {
+                PoolTracer.mark(PoolTracer.Phase.ACQUIRE);
+                long deadline = System.currentTimeMillis() + timeoutMillis;
+                while (ticketList.isEmpty()) {
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (remaining <= 0) {
+                        return null;
+                    }
+                    try {
+                        wait(remaining);
+                        PoolTracer.mark(PoolTracer.Phase.WAIT);
+                    } catch(InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        System.out.println("Error while waiting to remove ticket.");
+                        return null;
+                    }
+                }
+                return takeTicket();
+            }
+        } finally {
+            PoolTracer.end();
+        }
+    }
 
+    /**
+     * Removes and returns a ticket from the ticket pool without waiting.
+     * Used where the caller must be told straight away that the pool is empty, rather than wait for a vendor.
+     *
+     * @return the ticket retrieved from the pool, or {@code null} if the pool is empty
+     */
+    public String pollTicket() {
+        PoolTracer.begin(PoolTracer.Operation.POLL);
+        try {
+            synchronized (this) {
+                PoolTracer.mark(PoolTracer.Phase.ACQUIRE);
+                if (ticketList.isEmpty()) {
+                    return null;
+                }
+                return takeTicket();
+            }
+        } finally {
+            PoolTracer.end();
+        }
+    }
+
+    /**
+     * Removes the first ticket and notifies waiting vendors. Must be called while holding the pool's monitor.
+     */
+    private String takeTicket() {
         String ticket = (String) ticketList.remove(0);
+        PoolTracer.mark(PoolTracer.Phase.MUTATE);
         System.out.println("Your ticket (" + ticket + ") has been retrieved from the pool");
+        PoolTracer.mark(PoolTracer.Phase.PRINT);
         // Notify all waiting vendor threads that space is available in the ticketPool.
         notifyAll();
+        PoolTracer.mark(PoolTracer.Phase.SIGNAL);
         return ticket;
     }
 }
@@ -0,0 +1,43 @@
+package backend;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Java Flight Recorder event for a single TicketPool operation, committed by the PoolTracer.
+ * Records how long the operation spent in each phase, so pool slowdowns can be inspected in JDK Mission Control.
+ */
+@Name("backend.TicketPoolOperation")
+@Label("Ticket Pool Operation")
+@Category("Ticket Management")
+@Description("Time spent acquiring, waiting on, mutating, printing from and signalling the ticket pool")
+public class TicketPoolEvent extends jdk.jfr.Event {
+    @Label("Operation")
+    String operation;
+
+    @Label("Role")
+    String role;
+
+    @Label("Acquire")
+    @Timespan(Timespan.NANOSECONDS)
+    long acquireNanos;
+
+    @Label("Wait")
+    @Timespan(Timespan.NANOSECONDS)
+    long waitNanos;
+
+    @Label("Mutate")
+    @Timespan(Timespan.NANOSECONDS)
+    long mutateNanos;
+
+    @Label("Print")
+    @Timespan(Timespan.NANOSECONDS)
+    long printNanos;
+
+    @Label("Signal")
+    @Timespan(Timespan.NANOSECONDS)
+    long signalNanos;
+}
@@ -29,6 +29,7 @@ public class Vendor implements Runnable{
      */
     @Override
     public void run() {
+        PoolTracer.setRole("Vendor");
         try {
             while (true) {
                 System.out.println("Vendor is adding tickets to ticket pool...");